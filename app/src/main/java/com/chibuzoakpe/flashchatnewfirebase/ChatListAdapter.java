@@ -29,16 +29,21 @@ import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 
 public class ChatListAdapter extends BaseAdapter {
 
     private Activity mActivity;
     private DatabaseReference mDatabaseReference;
+    private DatabaseReference mReactionsReference;
     private String mDisplayName;
 
     //A data snapshot is the data type of data objects sent back from firebase
     private ArrayList<DataSnapshot> mSnapshotList;
 
+    //The total number of reactions on each message, keyed by the message's key in firebase
+    private HashMap<String, Long> mReactionCounts;
+
     /*
     The childEventListener tracks when there's a change in the data in firebase and reports
     back to the application.
@@ -83,6 +88,42 @@ public class ChatListAdapter extends BaseAdapter {
         }
     };
 
+    /*
+    This listener keeps mReactionCounts up to date.
+    There is only ONE listener for the whole reactions node, not one per row. Each child is
+    a message key holding that message's shards, so whenever a shard changes we get the whole
+    message back, add the shards up and store a single number for getView() to use.
+     */
+    private ChildEventListener mReactionsListener = new ChildEventListener() {
+        @Override
+        public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            mReactionCounts.put(snapshot.getKey(), MessageReactions.sumShards(snapshot));
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+            mReactionCounts.put(snapshot.getKey(), MessageReactions.sumShards(snapshot));
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+            mReactionCounts.remove(snapshot.getKey());
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+
+        }
+
+        @Override
+        public void onCancelled(@NonNull DatabaseError error) {
+
+        }
+    };
+
 
     /*
     The adapter constructor basically initializes everything that would be
@@ -93,11 +134,14 @@ public class ChatListAdapter extends BaseAdapter {
         this.mActivity = activity;
         this.mDisplayName = name;
         this.mDatabaseReference = ref.child("messages");
-
-        //We need to attach our listener to the database reference
-        this.mDatabaseReference.addChildEventListener(mChildEventListener);
+        this.mReactionsReference = ref.child(MessageReactions.REACTIONS_NODE);
 
         mSnapshotList = new ArrayList<>();
+        mReactionCounts = new HashMap<>();
+
+        //We need to attach our listeners to the database references
+        this.mDatabaseReference.addChildEventListener(mChildEventListener);
+        this.mReactionsReference.addChildEventListener(mReactionsListener);
     }
 
     /*
@@ -109,6 +153,7 @@ public class ChatListAdapter extends BaseAdapter {
     static class ViewHolder {
         TextView authorname;
         TextView body;
+        TextView reactions;
         LinearLayout.LayoutParams params;
     }
 
@@ -135,6 +180,14 @@ public class ChatListAdapter extends BaseAdapter {
         return snapshot.getValue(InstantMessage.class);
     }
 
+    /*
+    The key firebase generated for the message when it was pushed.
+    This is what the reactions for the message are stored under.
+     */
+    public String getMessageKey(int position) {
+        return mSnapshotList.get(position).getKey();
+    }
+
     @Override
     public long getItemId(int position) {
         return 0;
@@ -166,6 +219,7 @@ public class ChatListAdapter extends BaseAdapter {
             ViewHolder holder = new ViewHolder();
             holder.authorname = (TextView) convertView.findViewById(R.id.author);
             holder.body = (TextView) convertView.findViewById(R.id.message);
+            holder.reactions = (TextView) convertView.findViewById(R.id.reactions);
 
             /*
             As I suspected, you could call getLayoutParams() on holder.body or holder.authorname
@@ -197,6 +251,16 @@ public class ChatListAdapter extends BaseAdapter {
         String msg = message.getMessage();
         holder.body.setText(msg);
 
+        //only show the reaction count if the message actually has reactions
+        Long reactionCount = mReactionCounts.get(getMessageKey(position));
+        if(reactionCount != null && reactionCount > 0) {
+            holder.reactions.setText(MessageReactions.REACTION_EMOJI + " " + reactionCount);
+            holder.reactions.setVisibility(View.VISIBLE);
+        }
+        else {
+            holder.reactions.setVisibility(View.GONE);
+        }
+
         return convertView;
     }
 
@@ -222,14 +286,16 @@ public class ChatListAdapter extends BaseAdapter {
          */
         viewHolder.authorname.setLayoutParams(viewHolder.params);
         viewHolder.body.setLayoutParams(viewHolder.params);
+        viewHolder.reactions.setLayoutParams(viewHolder.params);
 
     }
 
     /*
-    This method detaches the childEventListener from the database reference when it's no longer
+    This method detaches the childEventListeners from the database reference when it's no longer
     needed. Helps to free resources.
      */
     public void cleanUp() {
         this.mDatabaseReference.removeEventListener(this.mChildEventListener);
+        this.mReactionsReference.removeEventListener(this.mReactionsListener);
     }
 }
@@ -4,10 +4,12 @@ public class InstantMessage {
 
     private String message;
     private String author;
+    private String uid;
 
-    public InstantMessage(String message, String author) {
+    public InstantMessage(String message, String author, String uid) {
         this.message = message;
         this.author = author;
+        this.uid = uid;
     }
 
     public InstantMessage() {
@@ -20,4 +22,8 @@ public class InstantMessage {
     public String getAuthor() {
         return author;
     }
+
+    public String getUid() {
+        return uid;
+    }
 }
@@ -6,19 +6,30 @@ The adapter is set up in the onStart method (part of the lifecycle) not onCreate
 
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.View;
 import android.view.inputmethod.EditorInfo;
+import android.widget.AdapterView;
 import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.ListView;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ServerValue;
+
+import java.util.HashMap;
+import java.util.Map;
 
 
 public class MainChatActivity extends AppCompatActivity {
@@ -34,6 +45,12 @@ public class MainChatActivity extends AppCompatActivity {
 
     private ChatListAdapter mChatListAdapter;
 
+    //Keeps a single client from flooding the room with messages
+    private SendRateLimiter mSendRateLimiter;
+
+    //Longest message allowed. database.rules.json enforces the same limit on the server
+    public static final int MAX_MESSAGE_LENGTH = 500;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -42,6 +59,8 @@ public class MainChatActivity extends AppCompatActivity {
         // TODO: Set up the display name and get the Firebase reference
         setupDisplayName();
 
+        mSendRateLimiter = new SendRateLimiter(SystemClock.elapsedRealtime());
+
         // Link the Views in the layout to the Java code
         mInputText = (EditText) findViewById(R.id.messageInput);
         mSendButton = (ImageButton) findViewById(R.id.sendButton);
@@ -50,9 +69,21 @@ public class MainChatActivity extends AppCompatActivity {
         // TODO: Send the message when the "enter" button is pressed
         mInputText.setOnEditorActionListener(new TextView.OnEditorActionListener() {
             public boolean onEditorAction(TextView v, int actionId, KeyEvent event) {
-                if ((event != null && (event.getKeyCode() == KeyEvent.KEYCODE_ENTER)) || (actionId == EditorInfo.IME_ACTION_DONE)) {
+                if (event != null && event.getKeyCode() == KeyEvent.KEYCODE_ENTER) {
+                    /*
+                    The enter key reports both a key down and a key up, so only send on the
+                    key down. Returning true for both stops the key up being handled elsewhere.
+                     */
+                    if (event.getAction() == KeyEvent.ACTION_DOWN) {
+                        sendMessage();
+                    }
+                    return true;
+                }
+
+                if (actionId == EditorInfo.IME_ACTION_DONE) {
                     //do what you want on the press of 'done'
                     sendMessage();
+                    return true;
                 }
                 return false;
             }
@@ -65,6 +96,23 @@ public class MainChatActivity extends AppCompatActivity {
             }
         });
 
+        /*
+        React to a message with a long press. A plain tap is too easy to do by accident while
+        scrolling through the list.
+         */
+        mChatListView.setOnItemLongClickListener(new AdapterView.OnItemLongClickListener() {
+            public boolean onItemLongClick(AdapterView<?> parent, View view, int position, long id) {
+                FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+                if(user == null) {
+                    return false;
+                }
+
+                String messageKey = mChatListAdapter.getMessageKey(position);
+                MessageReactions.addReaction(mDatabaseReference, messageKey, user.getUid());
+                return true;
+            }
+        });
+
     }
 
     // TODO: Retrieve the display name from the Shared Preferences
@@ -79,16 +127,67 @@ public class MainChatActivity extends AppCompatActivity {
 
     private void sendMessage() {
         // TODO: Grab the text the user typed in and push the message to Firebase
-        Log.d("FlashChat", "Message sent");
+        final String message = mInputText.getText().toString().trim();
 
-        String message = mInputText.getText().toString();
-        InstantMessage iMessage = new InstantMessage(message, mDisplayName);
+        //don't send empty messages or ones the server would reject for being too long
+        if(message.isEmpty() || message.length() > MAX_MESSAGE_LENGTH) {
+            return;
+        }
+
+        //check this before the rate limiter so a send that can't happen doesn't use a token
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if(user == null) {
+            return;
+        }
+
+        /*
+        If the user is sending too fast (or sending the same message again), we drop the
+        message but leave the text in the input box so it can be sent again later.
+         */
+        if(!mSendRateLimiter.tryAcquire(message, SystemClock.elapsedRealtime())) {
+            Log.d("FlashChat", "Message dropped by rate limiter");
+            return;
+        }
+
+        InstantMessage iMessage = new InstantMessage(message, mDisplayName, user.getUid());
 
         /*save message in firebase service
             the below format is not in the developer docs, so you really need to come back to this every now and then
             the "messages" is arbitrary and is simply the name of the structure the messages will be stored in
+
+            The message is written together with the user's last send time and the key of the
+            message. The database rules only accept the message if its key is the one written
+            to rateLimits, so a single update can only carry one message, and only accept the
+            send time if the user's previous message was long enough ago.
          */
-        mDatabaseReference.child("messages").push().setValue(iMessage);
+        String messageKey = mDatabaseReference.child("messages").push().getKey();
+        String rateLimitPath = "rateLimits/" + user.getUid();
+
+        Map<String, Object> update = new HashMap<>();
+        update.put("messages/" + messageKey, iMessage);
+        update.put(rateLimitPath + "/time", ServerValue.TIMESTAMP);
+        update.put(rateLimitPath + "/lastKey", messageKey);
+
+        mDatabaseReference.updateChildren(update, new DatabaseReference.CompletionListener() {
+            @Override
+            public void onComplete(@Nullable DatabaseError error, @NonNull DatabaseReference ref) {
+                if(error == null) {
+                    Log.d("FlashChat", "Message sent");
+                    return;
+                }
+
+                /*
+                The server rejected the message, so put the text back in the input box
+                (in front of anything typed since) so the user can send it again.
+                 */
+                Log.d("FlashChat", "Message rejected: " + error.getMessage());
+                mSendRateLimiter.clearDuplicate();
+
+                String typedSince = mInputText.getText().toString();
+                mInputText.setText(typedSince.isEmpty() ? message : message + " " + typedSince);
+                mInputText.setSelection(mInputText.getText().length());
+            }
+        });
         mInputText.setText("");
     }
 
@@ -0,0 +1,136 @@
+package com.chibuzoakpe.flashchatnewfirebase;
+
+/*
+This class handles the emoji reactions on messages.
+
+A popular message in a big room could get a lot of reactions at the same time. If every
+reaction had to increment one single counter, all those writes would fight over the
+same node in firebase.
+So instead we split the counter for each message into a number of shards:
+
+    reactions/<messageKey>/<shardIndex> = count
+    reactionUsers/<messageKey>/<uid>    = shardIndex
+
+Each reaction only increments one randomly picked shard, so concurrent reactors are spread
+across NUM_SHARDS nodes. The real total is simply the sum of all the shards, and that sum
+is worked out on the reading side (see ChatListAdapter).
+
+The reactionUsers entry records which shard a user incremented. The database rules only
+accept a shard increment when that user's entry is created in the same write, so each user
+can only react once to a message. It is kept out of the reactions node, and nobody can read
+it, so clients listening for counts don't download every reactor's uid.
+ */
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.ServerValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class MessageReactions {
+
+    //the name of the structure the reactions are stored in, next to "messages"
+    public static final String REACTIONS_NODE = "reactions";
+
+    //which user has reacted to which message. Write only, see database.rules.json
+    public static final String REACTION_USERS_NODE = "reactionUsers";
+
+    //the emoji shown next to the reaction count on each message row
+    public static final String REACTION_EMOJI = "👍";
+
+    /*
+    More shards means less contention on a hot message, but more children to add up
+    when reading. 10 is plenty for the size of our rooms.
+    The shard index is checked with /^[0-9]$/ in database.rules.json, so that regex has to
+    change along with this number.
+     */
+    public static final int NUM_SHARDS = 10;
+
+    private static final Random sRandom = new Random();
+
+    /*
+    Adds the current user's reaction to the message with the given key.
+    The shard and the user's entry are written in one update. ServerValue.increment() does
+    the +1 on the server, so there is no transaction to retry when two reactors land on
+    the same shard.
+     */
+    public static void addReaction(DatabaseReference ref, String messageKey, String uid) {
+        Map<String, Object> update = buildReactionUpdate(messageKey, uid, pickShard());
+
+        ref.updateChildren(update, new DatabaseReference.CompletionListener() {
+            @Override
+            public void onComplete(@Nullable DatabaseError error, @NonNull DatabaseReference ref) {
+                if(error != null) {
+                    Log.d("FlashChat", "Reaction rejected: " + error.getMessage());
+                }
+            }
+        });
+    }
+
+    /*
+    The update for one reaction: +1 on a single shard, and the user's entry naming that shard.
+    Both have to be in the same write for the database rules to accept it.
+     */
+    public static Map<String, Object> buildReactionUpdate(String messageKey, String uid, int shard) {
+        Map<String, Object> update = new HashMap<>();
+        update.put(shardPath(messageKey, shard), ServerValue.increment(1));
+        update.put(userPath(messageKey, uid), String.valueOf(shard));
+        return update;
+    }
+
+    /*
+    Picks the shard a single reaction goes to. Random is thread safe, so this can be called
+    from any thread.
+     */
+    public static int pickShard() {
+        return sRandom.nextInt(NUM_SHARDS);
+    }
+
+    public static String shardPath(String messageKey, int shard) {
+        return REACTIONS_NODE + "/" + messageKey + "/" + shard;
+    }
+
+    public static String userPath(String messageKey, String uid) {
+        return REACTION_USERS_NODE + "/" + messageKey + "/" + uid;
+    }
+
+    /*
+    Adds up all the shards of a single message so it can be shown as one number.
+    The snapshot passed in is the reactions/<messageKey> node.
+     */
+    public static long sumShards(DataSnapshot snapshot) {
+        List<Long> counts = new ArrayList<>();
+
+        for(DataSnapshot shard : snapshot.getChildren()) {
+            counts.add(shard.getValue(Long.class));
+        }
+
+        return sumCounts(counts);
+    }
+
+    /*
+    The adding up itself, kept apart from DataSnapshot so it can be tested on its own.
+    Missing shards come back as null and just count as zero.
+     */
+    public static long sumCounts(Iterable<Long> counts) {
+        long total = 0;
+
+        for(Long count : counts) {
+            if(count != null) {
+                total += count;
+            }
+        }
+
+        return total;
+    }
+}
@@ -0,0 +1,89 @@
+package com.chibuzoakpe.flashchatnewfirebase;
+
+/*
+This class stops a single client from flooding the "messages" node.
+
+It is a token bucket: the bucket holds up to MAX_TOKENS tokens and every message sent uses
+one of them. Tokens are put back at a rate of one every REFILL_INTERVAL_MS, so a user can
+send a short burst of messages but not keep sending faster than the refill rate.
+Messages in a burst still have to be at least MIN_SEND_INTERVAL_MS apart. That is a bit
+more than SERVER_MIN_SEND_INTERVAL_MS, the gap the database rules check for between two
+messages from the same user, so network jitter doesn't get our own sends rejected.
+REFILL_INTERVAL_MS is well above that gap, so a burst at the minimum gap drains the bucket
+and gets cut off after 7 messages instead of going on forever.
+
+It also drops a message if it is exactly the same as the last one sent within
+DUPLICATE_WINDOW_MS. That catches the same message being sent twice by a double tap or by
+the enter key firing more than once.
+
+The database rules (database.rules.json) enforce the minimum gap and the message length on
+the server, so this is only the first line of defence. It saves the user from having
+writes rejected.
+ */
+
+public class SendRateLimiter {
+
+    public static final int MAX_TOKENS = 5;
+    public static final long REFILL_INTERVAL_MS = 2000;
+
+    //must match the "now - 500" check on rateLimits/$uid/time in database.rules.json
+    public static final long SERVER_MIN_SEND_INTERVAL_MS = 500;
+    public static final long MIN_SEND_INTERVAL_MS = SERVER_MIN_SEND_INTERVAL_MS + 250;
+
+    public static final long DUPLICATE_WINDOW_MS = 3000;
+
+    private double mTokens;
+    private long mLastRefillTime;
+
+    private String mLastMessage;
+    private long mLastMessageTime;
+    private boolean mHasSent;
+
+    public SendRateLimiter(long nowMillis) {
+        mTokens = MAX_TOKENS;
+        mLastRefillTime = nowMillis;
+    }
+
+    /*
+    Returns true if the message can be sent now, and uses up a token for it.
+    The time is passed in rather than read here so the limiter doesn't depend on any clock.
+     */
+    public boolean tryAcquire(String message, long nowMillis) {
+        refill(nowMillis);
+
+        if(message.equals(mLastMessage) && nowMillis - mLastMessageTime < DUPLICATE_WINDOW_MS) {
+            return false;
+        }
+
+        if(mHasSent && nowMillis - mLastMessageTime < MIN_SEND_INTERVAL_MS) {
+            return false;
+        }
+
+        if(mTokens < 1) {
+            return false;
+        }
+
+        mTokens -= 1;
+        mLastMessage = message;
+        mLastMessageTime = nowMillis;
+        mHasSent = true;
+        return true;
+    }
+
+    /*
+    Forgets the last message for duplicate checking. Called when a send fails, so the user
+    can send the same text again straight away.
+     */
+    public void clearDuplicate() {
+        mLastMessage = null;
+    }
+
+    private void refill(long nowMillis) {
+        long elapsed = nowMillis - mLastRefillTime;
+
+        if(elapsed > 0) {
+            mTokens = Math.min(MAX_TOKENS, mTokens + (double) elapsed / REFILL_INTERVAL_MS);
+            mLastRefillTime = nowMillis;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.chibuzoakpe.flashchatnewfirebase;
+
+/*
+Tests for the sharded reaction counters.
+
+These check the update addReaction() sends and the way shards are added back up. They
+don't talk to firebase, so there is no load test against a real database here.
+ */
+
+import com.google.firebase.database.ServerValue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MessageReactionsTest {
+
+    @Test
+    public void reactionUpdateIsOneShardIncrementAndOneUserEntry() {
+        Map<String, Object> update = MessageReactions.buildReactionUpdate("abc", "u1", 7);
+
+        assertEquals(2, update.size());
+        assertEquals(ServerValue.increment(1), update.get(MessageReactions.shardPath("abc", 7)));
+        assertEquals("7", update.get(MessageReactions.userPath("abc", "u1")));
+    }
+
+    @Test
+    public void userEntryIsKeptOutOfTheReactionsNode() {
+        assertEquals("reactions/abc/7", MessageReactions.shardPath("abc", 7));
+        assertEquals("reactionUsers/abc/u1", MessageReactions.userPath("abc", "u1"));
+    }
+
+    @Test
+    public void pickShardStaysInsideTheShardRange() {
+        for(int i = 0; i < 10000; i++) {
+            int shard = MessageReactions.pickShard();
+            assertTrue(shard >= 0 && shard < MessageReactions.NUM_SHARDS);
+        }
+    }
+
+    @Test
+    public void missingShardsCountAsZero() {
+        List<Long> counts = new ArrayList<>();
+        counts.add(3L);
+        counts.add(null);
+        counts.add(4L);
+
+        assertEquals(7, MessageReactions.sumCounts(counts));
+    }
+}
@@ -0,0 +1,123 @@
+package com.chibuzoakpe.flashchatnewfirebase;
+
+/*
+Tests for the client side send limit.
+
+SendRateLimiter takes the time as a parameter, so these tests just make up the clock.
+The flood test plays a spamming client that tries to send as fast as it can for a while
+and checks the number of messages that get through stays bounded.
+ */
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SendRateLimiterTest {
+
+    private static final long START = 1000000;
+
+    /*
+    How many messages get through when sending at exactly MIN_SEND_INTERVAL_MS apart on a
+    full bucket. Each gap refills 750 / 2000 = 0.375 tokens and each send uses 1, so the
+    bucket drops by 0.625 per send: 5, 4.375, 3.75, 3.125, 2.5, 1.875, 1.25 tokens before
+    sends 1 to 7, and only 0.625 before the 8th.
+     */
+    private static final int BURST_SENDS = 7;
+
+    //sends "burst 0" .. "burst 6" at the minimum gap and returns the time of the last one
+    private long sendBurst(SendRateLimiter limiter, String lastMessage) {
+        long now = START;
+
+        for(int i = 0; i < BURST_SENDS; i++) {
+            String message = i == BURST_SENDS - 1 ? lastMessage : "burst " + i;
+            assertTrue("send " + i, limiter.tryAcquire(message, now));
+            now += SendRateLimiter.MIN_SEND_INTERVAL_MS;
+        }
+
+        return now - SendRateLimiter.MIN_SEND_INTERVAL_MS;
+    }
+
+    @Test
+    public void burstIsCappedAtMaxTokens() {
+        SendRateLimiter limiter = new SendRateLimiter(START);
+
+        long last = sendBurst(limiter, "last");
+
+        //the bucket is now down to 0.625 tokens at the next allowed time, so this is refused
+        assertFalse(limiter.tryAcquire("one too many", last + SendRateLimiter.MIN_SEND_INTERVAL_MS));
+    }
+
+    @Test
+    public void floodIsBoundedBySustainedRate() {
+        SendRateLimiter limiter = new SendRateLimiter(START);
+        long floodLength = 10 * 60 * 1000;
+        long attempts = 0;
+        long sent = 0;
+
+        //try to send every 10ms for ten minutes
+        for(long now = START; now < START + floodLength; now += 10) {
+            attempts++;
+            if(limiter.tryAcquire("spam " + attempts, now)) {
+                sent++;
+            }
+        }
+
+        long allowed = SendRateLimiter.MAX_TOKENS + floodLength / SendRateLimiter.REFILL_INTERVAL_MS;
+        assertTrue("sent " + sent + " of " + attempts + ", allowed " + allowed, sent <= allowed);
+
+        //and the limiter still lets a steady sender through at the refill rate
+        assertTrue(sent >= floodLength / SendRateLimiter.REFILL_INTERVAL_MS);
+    }
+
+    @Test
+    public void minimumGapIsEnforced() {
+        SendRateLimiter limiter = new SendRateLimiter(START);
+
+        assertTrue(limiter.tryAcquire("first", START));
+        assertFalse(limiter.tryAcquire("second", START + SendRateLimiter.MIN_SEND_INTERVAL_MS - 1));
+        assertTrue(limiter.tryAcquire("second", START + SendRateLimiter.MIN_SEND_INTERVAL_MS));
+    }
+
+    @Test
+    public void clientGapIsWiderThanServerGap() {
+        assertTrue(SendRateLimiter.MIN_SEND_INTERVAL_MS > SendRateLimiter.SERVER_MIN_SEND_INTERVAL_MS);
+    }
+
+    @Test
+    public void duplicateIsDroppedInsideWindowAndAllowedAfter() {
+        SendRateLimiter limiter = new SendRateLimiter(START);
+
+        assertTrue(limiter.tryAcquire("hello", START));
+        assertFalse(limiter.tryAcquire("hello", START + SendRateLimiter.DUPLICATE_WINDOW_MS - 1));
+        assertTrue(limiter.tryAcquire("hello", START + SendRateLimiter.DUPLICATE_WINDOW_MS));
+    }
+
+    @Test
+    public void droppedMessageDoesNotUseAToken() {
+        SendRateLimiter limiter = new SendRateLimiter(START);
+
+        //after the burst there are 0.25 tokens left, and 1500ms later exactly 1
+        long now = sendBurst(limiter, "hello") + 1500;
+
+        //duplicates of the last message, all at once, are dropped
+        for(int i = 0; i < 5; i++) {
+            assertFalse(limiter.tryAcquire("hello", now));
+        }
+
+        //so the one token is still there for a different message
+        assertTrue(limiter.tryAcquire("world", now));
+
+        //and that really was the last token
+        assertFalse(limiter.tryAcquire("again", now + SendRateLimiter.MIN_SEND_INTERVAL_MS));
+    }
+
+    @Test
+    public void clearDuplicateAllowsResendAfterFailure() {
+        SendRateLimiter limiter = new SendRateLimiter(START);
+
+        assertTrue(limiter.tryAcquire("hello", START));
+        limiter.clearDuplicate();
+        assertTrue(limiter.tryAcquire("hello", START + SendRateLimiter.MIN_SEND_INTERVAL_MS));
+    }
+}